@@ -0,0 +1,404 @@
+import controller.ClassroomController;
+import store.PayloadStore;
+import view.ConsoleView;
+import workload.TraceEvent;
+import workload.TraceReader;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ReplayDriver class replays a recorded or generated trace through the same command
+ * parsing, controller, and classroom code as the interactive application, and reports
+ * throughput, latency percentiles, allocation rate, and peak heap usage.
+ * <p>
+ * With several threads, commands are sharded by classroom name so that each classroom's
+ * commands keep their order on a single thread. Each thread has its own controller; all
+ * threads share one payload store. Commands that name no classroom, such as
+ * list_classrooms, are dealt round-robin and only see the classrooms of their own shard,
+ * so their latencies are only comparable between runs with the same thread count.
+ * <p>
+ * Latency is reported as service time, measured from the start of each command. In paced
+ * mode, response time is also reported, measured from the recorded time of the command, so
+ * that delays caused by earlier slow commands are included.
+ * <p>
+ * Console output is discarded during the replay by a sink that takes no lock, so that
+ * threads do not contend inside the driver. Logging is disabled unless requested; with
+ * --log, every thread writes through the shared console handler, which serializes them.
+ * <p>
+ * If any command throws, the replay is reported as failed and the driver exits with a
+ * non-zero status instead of printing measurements.
+ */
+public class ReplayDriver {
+    // Percentiles included in the report
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * A replay thread and the measurements it records.
+     */
+    private static final class Worker implements Runnable {
+        private final List<TraceEvent> events;
+        private final ClassroomController controller;
+        private final boolean paced;
+        private final CountDownLatch start;
+        private final long[] serviceTimes;
+        private final long[] responseTimes;
+        private long allocatedBytes;
+        private volatile long startNanos;
+        // Number of commands that completed, and the failure that stopped the thread, if any
+        private int completed;
+        private Throwable failure;
+
+        private Worker(List<TraceEvent> events, PayloadStore payloadStore, boolean paced, CountDownLatch start) {
+            this.events = events;
+            this.controller = new ClassroomController(payloadStore);
+            this.paced = paced;
+            this.start = start;
+            this.serviceTimes = new long[events.size()];
+            this.responseTimes = paced ? new long[events.size()] : null;
+        }
+
+        @Override
+        public void run() {
+            ConsoleView view = new ConsoleView();
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long allocatedBefore = allocatedBytes();
+            long origin = startNanos;
+            try {
+                replay(origin, view);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            allocatedBytes = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        }
+
+        private void replay(long origin, ConsoleView view) {
+            for (int i = 0; i < events.size(); i++) {
+                TraceEvent event = events.get(i);
+                long due = origin + event.getTimestampNanos();
+                if (paced) {
+                    // Wait until the recorded time of the command
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                long begin = System.nanoTime();
+                VirtualClassroomManager.processCommand(event.getLine(), controller, view);
+                long end = System.nanoTime();
+                serviceTimes[i] = end - begin;
+                if (paced) {
+                    // Include any time the command spent waiting behind earlier commands
+                    responseTimes[i] = end - due;
+                }
+                completed = i + 1;
+            }
+        }
+    }
+
+    /**
+     * A console sink that discards all output without taking the PrintStream lock.
+     */
+    private static final class DiscardingPrintStream extends PrintStream {
+        private DiscardingPrintStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override public void write(int b) { }
+        @Override public void write(byte[] buf, int off, int len) { }
+        @Override public void write(byte[] buf) { }
+        @Override public void flush() { }
+        @Override public void print(boolean b) { }
+        @Override public void print(char c) { }
+        @Override public void print(int i) { }
+        @Override public void print(long l) { }
+        @Override public void print(float f) { }
+        @Override public void print(double d) { }
+        @Override public void print(char[] s) { }
+        @Override public void print(String s) { }
+        @Override public void print(Object obj) { }
+        @Override public void println() { }
+        @Override public void println(boolean x) { }
+        @Override public void println(char x) { }
+        @Override public void println(int x) { }
+        @Override public void println(long x) { }
+        @Override public void println(float x) { }
+        @Override public void println(double x) { }
+        @Override public void println(char[] x) { }
+        @Override public void println(String x) { }
+        @Override public void println(Object x) { }
+        @Override public PrintStream printf(String format, Object... args) { return this; }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { return this; }
+        @Override public PrintStream format(String format, Object... args) { return this; }
+        @Override public PrintStream format(Locale l, String format, Object... args) { return this; }
+        @Override public PrintStream append(CharSequence csq) { return this; }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { return this; }
+        @Override public PrintStream append(char c) { return this; }
+    }
+
+    /**
+     * Replays a trace from the command line.
+     * Usage: ReplayDriver [trace file] [--threads N] [--paced] [--log] [--payload-dir DIR]
+     *
+     * @param args Command-line arguments.
+     * @throws Exception If the trace cannot be read or the replay is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayDriver [trace file] [--threads N] [--paced] [--log] [--payload-dir DIR]");
+            return;
+        }
+        int threads = 1;
+        boolean paced = false;
+        boolean log = false;
+        Path payloadDir = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--paced": paced = true; break;
+                case "--log": log = true; break;
+                case "--payload-dir": payloadDir = Paths.get(args[++i]); break;
+                default:
+                    System.out.println("Error: Unknown option " + args[i] + ".");
+                    return;
+            }
+        }
+        if (threads < 1) {
+            System.out.println("Error: The number of threads must be at least 1.");
+            return;
+        }
+        if (!log) {
+            Logger.getLogger("").setLevel(Level.OFF);
+        }
+
+        List<TraceEvent> events = TraceReader.readAll(Paths.get(args[0]));
+        List<List<TraceEvent>> shards = shard(events, threads);
+
+        PayloadStore payloadStore = payloadDir != null ? new PayloadStore(payloadDir) : PayloadStore.openTemporary();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(shards.get(t), payloadStore, paced, start);
+            Thread thread = new Thread(worker, "replay-" + t);
+            workers.add(worker);
+            workerThreads.add(thread);
+            thread.start();
+        }
+
+        // Discard console output during the replay
+        PrintStream console = System.out;
+        System.setOut(new DiscardingPrintStream());
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        resetPeakHeap();
+
+        long begin = System.nanoTime();
+        for (Worker worker : workers) {
+            worker.startNanos = begin;
+        }
+        start.countDown();
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long peakHeap = peakHeap();
+        System.setOut(console);
+        payloadStore.close();
+
+        boolean failed = false;
+        for (int t = 0; t < workers.size(); t++) {
+            Worker worker = workers.get(t);
+            if (worker.failure != null) {
+                // A failed run must not be reported as measurements
+                failed = true;
+                System.err.println("Error: replay-" + t + " failed after " + worker.completed + " of "
+                        + worker.events.size() + " commands at: " + worker.events.get(worker.completed).getLine());
+                worker.failure.printStackTrace();
+            }
+        }
+        if (failed) {
+            System.err.println("Replay failed; no measurements reported.");
+            System.exit(1);
+        }
+
+        report(events, workers, elapsed, peakHeap, gcCount() - gcCountBefore, gcTime() - gcTimeBefore, threads, paced);
+    }
+
+    /**
+     * Splits the events into one list per thread, keeping each classroom's commands on one thread.
+     * Commands that name no classroom are spread round-robin and are scoped to their shard.
+     */
+    private static List<List<TraceEvent>> shard(List<TraceEvent> events, int threads) {
+        List<List<TraceEvent>> shards = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            shards.add(new ArrayList<>());
+        }
+        int next = 0;
+        for (TraceEvent event : events) {
+            String className = classNameOf(event.getLine());
+            int t = className != null ? Math.floorMod(className.hashCode(), threads) : next++ % threads;
+            shards.get(t).add(event);
+        }
+        return shards;
+    }
+
+    /**
+     * Returns the classroom named by a command line, following the argument layout of each command.
+     */
+    private static String classNameOf(String line) {
+        String[] parts = line.split(" ");
+        switch (parts[0]) {
+            case "add_classroom":
+            case "schedule_assignment":
+            case "view_classroom":
+                return parts.length > 1 ? parts[1] : null;
+            case "submit_assignment":
+                return parts.length > 2 ? parts[2] : null;
+            case "add_student":
+                return parts.length > 3 ? parts[3] : null;
+            default:
+                return null;
+        }
+    }
+
+    private static void report(List<TraceEvent> events, List<Worker> workers, long elapsedNanos, long peakHeap,
+                               long gcCount, long gcTimeMillis, int threads, boolean paced) {
+        long allocated = 0;
+        boolean allocationSupported = true;
+        for (Worker worker : workers) {
+            allocated += worker.allocatedBytes;
+            allocationSupported &= worker.allocatedBytes >= 0;
+        }
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println("commands=" + events.size() + " threads=" + threads + " mode=" + (paced ? "paced" : "max"));
+        System.out.printf("elapsed_s=%.3f throughput_ops_s=%.1f%n", seconds, events.size() / seconds);
+        if (allocationSupported) {
+            System.out.printf("allocated_mb=%.1f allocation_rate_mb_s=%.1f%n",
+                    allocated / 1048576.0, allocated / 1048576.0 / seconds);
+        } else {
+            System.out.println("allocated_mb=n/a allocation_rate_mb_s=n/a");
+        }
+        System.out.printf("peak_heap_mb=%.1f gc_count=%d gc_time_ms=%d%n", peakHeap / 1048576.0, gcCount, gcTimeMillis);
+        if (threads > 1) {
+            System.out.println("note: commands without a classroom (e.g. list_classrooms) see only their shard's classrooms");
+        }
+        printLatencies("service_us", workers, false);
+        if (paced) {
+            printLatencies("response_us", workers, true);
+        }
+    }
+
+    /**
+     * Prints latency percentiles for all commands and for each command kind.
+     */
+    private static void printLatencies(String metric, List<Worker> workers, boolean response) {
+        Map<String, List<Long>> byCommand = new TreeMap<>();
+        List<Long> all = new ArrayList<>();
+        for (Worker worker : workers) {
+            long[] latencies = response ? worker.responseTimes : worker.serviceTimes;
+            for (int i = 0; i < worker.events.size(); i++) {
+                all.add(latencies[i]);
+                byCommand.computeIfAbsent(worker.events.get(i).getCommand(), c -> new ArrayList<>()).add(latencies[i]);
+            }
+        }
+        printLatencies(metric, "all", all);
+        byCommand.forEach((command, latencies) -> printLatencies(metric, command, latencies));
+    }
+
+    private static void printLatencies(String metric, String label, List<Long> latencies) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        StringBuilder line = new StringBuilder(String.format("%s %-20s n=%d", metric, label, sorted.length));
+        for (double p : PERCENTILES) {
+            line.append(String.format(" p%s=%.1f", p == Math.floor(p) ? String.valueOf((long) p) : String.valueOf(p),
+                    percentile(sorted, p) / 1000.0));
+        }
+        line.append(String.format(" max=%.1f", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0));
+        System.out.println(line);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if this is not supported.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usage of each heap pool since the last reset.
+     * Pools may peak at different times, so this is an upper bound on the peak heap.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
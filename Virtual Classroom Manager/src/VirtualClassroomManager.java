@@ -1,6 +1,10 @@
 import controller.ClassroomController;
 import view.ConsoleView;
+import workload.TraceWriter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,9 +22,18 @@ public class VirtualClassroomManager {
      * @param args Command-line arguments.
      */
     public static void main(String[] args) {
-        // Instantiate the controller and view objects
-        ClassroomController controller = new ClassroomController();
+        // Instantiate the view and controller objects
         ConsoleView view = new ConsoleView();
+        ClassroomController controller;
+        try {
+            controller = new ClassroomController();
+        } catch (UncheckedIOException e) {
+            // Display an error and exit if the payload store cannot be opened
+            view.showMessage("Error: " + e.getCause().getMessage());
+            logger.severe("Unable to start: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
 
         // Display the title of the application
         view.showTitle("Virtual Classroom Manager");
@@ -28,6 +41,9 @@ public class VirtualClassroomManager {
         // Display the help menu
         displayHelp(view);
 
+        // Record the command stream when the "vcm.trace" system property names a trace file
+        TraceWriter recorder = openRecorder();
+
         // Flag to control the main application loop
         boolean running = true;
 
@@ -35,134 +51,201 @@ public class VirtualClassroomManager {
         while (running) {
             // Get user input from the console
             String userInput = view.getUserInput();
-            // Split the input into command and arguments
-            String[] commandParts = userInput.split(" ", 2);
-            // Extract the command from the input
-            String command = commandParts.length > 0 ? commandParts[0] : "";
-
+            if (recorder != null) {
+                recordCommand(recorder, userInput);
+            }
             // Process the command entered by the user
-            switch (command) {
-                case "add_classroom":
-                    view.showHeader("Add Classroom"); // Display header for the command
-                    if (commandParts.length > 1) {
-                        // Add the new classroom using the provided name
-                        controller.addClassroom(commandParts[1]);
-                    } else {
-                        // Display error message if classroom name is missing
-                        view.showMessage("Error: Missing classroom name.");
-                        logger.warning("Missing classroom name in 'add_classroom' command.");
-                    }
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "add_student":
-                    view.showHeader("Add Student"); // Display header for the command
-                    if (commandParts.length > 1) {
-                        // Split the student details into ID, name, and class name
-                        String[] studentParts = commandParts[1].split(" ", 3);
-                        if (studentParts.length == 3) {
-                            // Add the student to the specified class
-                            controller.addStudent(studentParts[0], studentParts[1], studentParts[2]);
-                        } else {
-                            // Display error message if student details are invalid
-                            view.showMessage("Error: Invalid student details. Format: [student ID] [student name] [class name]");
-                            logger.warning("Invalid student details in 'add_student' command.");
-                        }
-                    } else {
-                        // Display error message if student details are missing
-                        view.showMessage("Error: Missing student details.");
-                        logger.warning("Missing student details in 'add_student' command.");
-                    }
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "schedule_assignment":
-                    view.showHeader("Schedule Assignment"); // Display header for the command
-                    if (commandParts.length > 1) {
-                        // Split the assignment details into class name and details
-                        String[] assignmentParts = commandParts[1].split(" ", 2);
-                        if (assignmentParts.length == 2) {
-                            // Schedule the assignment for the specified class
-                            controller.scheduleAssignment(assignmentParts[0], assignmentParts[1]);
-                        } else {
-                            // Display error message if assignment details are invalid
-                            view.showMessage("Error: Invalid assignment details. Format: [class name] [assignment details]");
-                            logger.warning("Invalid assignment details in 'schedule_assignment' command.");
-                        }
+            running = processCommand(userInput, controller, view);
+        }
+
+        if (recorder != null) {
+            closeRecorder(recorder);
+        }
+        System.exit(0); // Exit the application
+    }
+
+    /**
+     * Parses a single command line and dispatches it to the controller.
+     *
+     * @param userInput  The command line entered by the user.
+     * @param controller The ClassroomController object that performs the command.
+     * @param view       The ConsoleView object used to display messages.
+     * @return false if the command asks the application to exit, true otherwise.
+     */
+    static boolean processCommand(String userInput, ClassroomController controller, ConsoleView view) {
+        // Split the input into command and arguments
+        String[] commandParts = userInput.split(" ", 2);
+        // Extract the command from the input
+        String command = commandParts.length > 0 ? commandParts[0] : "";
+
+        // Process the command entered by the user
+        switch (command) {
+            case "add_classroom":
+                view.showHeader("Add Classroom"); // Display header for the command
+                if (commandParts.length > 1) {
+                    // Add the new classroom using the provided name
+                    controller.addClassroom(commandParts[1]);
+                } else {
+                    // Display error message if classroom name is missing
+                    view.showMessage("Error: Missing classroom name.");
+                    logger.warning("Missing classroom name in 'add_classroom' command.");
+                }
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "add_student":
+                view.showHeader("Add Student"); // Display header for the command
+                if (commandParts.length > 1) {
+                    // Split the student details into ID, name, and class name
+                    String[] studentParts = commandParts[1].split(" ", 3);
+                    if (studentParts.length == 3) {
+                        // Add the student to the specified class
+                        controller.addStudent(studentParts[0], studentParts[1], studentParts[2]);
                     } else {
-                        // Display error message if assignment details are missing
-                        view.showMessage("Error: Missing assignment details.");
-                        logger.warning("Missing assignment details in 'schedule_assignment' command.");
+                        // Display error message if student details are invalid
+                        view.showMessage("Error: Invalid student details. Format: [student ID] [student name] [class name]");
+                        logger.warning("Invalid student details in 'add_student' command.");
                     }
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "submit_assignment":
-                    view.showHeader("Submit Assignment"); // Display header for the command
-                    if (commandParts.length > 1) {
-                        // Split the submission details into student ID, class name, and assignment details
-                        String[] submissionParts = commandParts[1].split(" ", 3);
-                        if (submissionParts.length == 3) {
-                            // Submit the assignment for the specified student
-                            controller.submitAssignment(submissionParts[0], submissionParts[1], submissionParts[2]);
-                        } else {
-                            // Display error message if submission details are invalid
-                            view.showMessage("Error: Invalid submission details. Format: [student ID] [class name] [assignment details]");
-                            logger.warning("Invalid submission details in 'submit_assignment' command.");
-                        }
+                } else {
+                    // Display error message if student details are missing
+                    view.showMessage("Error: Missing student details.");
+                    logger.warning("Missing student details in 'add_student' command.");
+                }
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "schedule_assignment":
+                view.showHeader("Schedule Assignment"); // Display header for the command
+                if (commandParts.length > 1) {
+                    // Split the assignment details into class name and details
+                    String[] assignmentParts = commandParts[1].split(" ", 2);
+                    if (assignmentParts.length == 2) {
+                        // Schedule the assignment for the specified class
+                        controller.scheduleAssignment(assignmentParts[0], assignmentParts[1]);
                     } else {
-                        // Display error message if submission details are missing
-                        view.showMessage("Error: Missing submission details.");
-                        logger.warning("Missing submission details in 'submit_assignment' command.");
+                        // Display error message if assignment details are invalid
+                        view.showMessage("Error: Invalid assignment details. Format: [class name] [assignment details]");
+                        logger.warning("Invalid assignment details in 'schedule_assignment' command.");
                     }
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "list_classrooms":
-                    view.showHeader("List Classrooms"); // Display header for the command
-                    // List all available classrooms
-                    controller.listClassrooms();
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "view_classroom":
-                    view.showHeader("View Classroom Details"); // Display header for the command
-                    if (commandParts.length > 1) {
-                        // View the details of the specified classroom
-                        controller.viewClassroomDetails(commandParts[1]);
+                } else {
+                    // Display error message if assignment details are missing
+                    view.showMessage("Error: Missing assignment details.");
+                    logger.warning("Missing assignment details in 'schedule_assignment' command.");
+                }
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "submit_assignment":
+                view.showHeader("Submit Assignment"); // Display header for the command
+                if (commandParts.length > 1) {
+                    // Split the submission details into student ID, class name, and assignment details
+                    String[] submissionParts = commandParts[1].split(" ", 3);
+                    if (submissionParts.length == 3) {
+                        // Submit the assignment for the specified student
+                        controller.submitAssignment(submissionParts[0], submissionParts[1], submissionParts[2]);
                     } else {
-                        // Display error message if classroom name is missing
-                        view.showMessage("Error: Missing classroom name.");
-                        logger.warning("Missing classroom name in 'view_classroom' command.");
+                        // Display error message if submission details are invalid
+                        view.showMessage("Error: Invalid submission details. Format: [student ID] [class name] [assignment details]");
+                        logger.warning("Invalid submission details in 'submit_assignment' command.");
                     }
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "help":
-                    view.showHeader("Help"); // Display header for the command
-                    // Display the help menu
-                    displayHelp(view);
-                    view.showFooter(); // Display footer after processing
-                    break;
-
-                case "exit":
-                    view.showHeader("Exit"); // Display header for the command
-                    // Display exit message and terminate the application
-                    view.showMessage("Exiting the application...");
-                    view.showFooter(); // Display footer after processing
-                    logger.info("Application exited.");
-                    System.exit(0); // Exit the application
-                    running = false; // Set running to false to exit the loop
-                    break;
-
-                default:
-                    view.showHeader("Invalid Command"); // Display header for the command
-                    // Display error message for invalid command
-                    view.showMessage("Invalid command. Type 'help' to see the list of commands.");
-                    view.showFooter(); // Display footer after processing
-                    logger.warning("Invalid command: " + command);
-                    break;
-            }
+                } else {
+                    // Display error message if submission details are missing
+                    view.showMessage("Error: Missing submission details.");
+                    logger.warning("Missing submission details in 'submit_assignment' command.");
+                }
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "list_classrooms":
+                view.showHeader("List Classrooms"); // Display header for the command
+                // List all available classrooms
+                controller.listClassrooms();
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "view_classroom":
+                view.showHeader("View Classroom Details"); // Display header for the command
+                if (commandParts.length > 1) {
+                    // View the details of the specified classroom
+                    controller.viewClassroomDetails(commandParts[1]);
+                } else {
+                    // Display error message if classroom name is missing
+                    view.showMessage("Error: Missing classroom name.");
+                    logger.warning("Missing classroom name in 'view_classroom' command.");
+                }
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "help":
+                view.showHeader("Help"); // Display header for the command
+                // Display the help menu
+                displayHelp(view);
+                view.showFooter(); // Display footer after processing
+                break;
+
+            case "exit":
+                view.showHeader("Exit"); // Display header for the command
+                // Display exit message and terminate the application
+                view.showMessage("Exiting the application...");
+                view.showFooter(); // Display footer after processing
+                logger.info("Application exited.");
+                return false; // Signal the caller to exit the application
+
+            default:
+                view.showHeader("Invalid Command"); // Display header for the command
+                // Display error message for invalid command
+                view.showMessage("Invalid command. Type 'help' to see the list of commands.");
+                view.showFooter(); // Display footer after processing
+                logger.warning("Invalid command: " + command);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Opens a trace recorder if the "vcm.trace" system property names a trace file.
+     *
+     * @return The trace recorder, or null if recording is disabled or the file cannot be opened.
+     */
+    private static TraceWriter openRecorder() {
+        String tracePath = System.getProperty("vcm.trace");
+        if (tracePath == null) {
+            return null;
+        }
+        try {
+            logger.info("Recording commands to " + tracePath + ".");
+            return new TraceWriter(Paths.get(tracePath));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to open trace file " + tracePath + ".", e);
+            return null;
+        }
+    }
+
+    /**
+     * Records a command line to the trace and flushes it, so the trace survives an abrupt exit.
+     *
+     * @param recorder  The trace recorder.
+     * @param userInput The command line entered by the user.
+     */
+    private static void recordCommand(TraceWriter recorder, String userInput) {
+        try {
+            recorder.record(userInput);
+            recorder.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to record command to trace.", e);
+        }
+    }
+
+    /**
+     * Closes the trace recorder.
+     *
+     * @param recorder The trace recorder.
+     */
+    private static void closeRecorder(TraceWriter recorder) {
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to close trace file.", e);
         }
     }
 
@@ -3,9 +3,13 @@ package controller;
 import model.Assignment;
 import model.Classroom;
 import model.Student;
+import store.PayloadStore;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 /**
@@ -19,16 +23,43 @@ public class ClassroomController {
     
     // Map to store classrooms by their name
     private Map<String, Classroom> classrooms;
+    // Payload store shared by all classrooms for assignment details
+    private PayloadStore payloadStore;
 
     /**
      * Constructs a ClassroomController object.
-     * Initializes the classrooms map and logs the initialization.
+     * Opens the payload store in the directory named by the "vcm.payloadDir" system
+     * property; without it, a temporary store is used and deleted when the application exits.
+     *
+     * @throws UncheckedIOException If the payload store cannot be opened.
      */
     public ClassroomController() {
+        this(openPayloadStore());
+    }
+
+    /**
+     * Constructs a ClassroomController object using the specified payload store.
+     * Initializes the classrooms map and logs the initialization.
+     *
+     * @param payloadStore The payload store shared by all classrooms.
+     */
+    public ClassroomController(PayloadStore payloadStore) {
         this.classrooms = new HashMap<>();
+        this.payloadStore = payloadStore;
         logger.info("ClassroomController initialized.");
     }
 
+    /**
+     * Opens the payload store configured by the "vcm.payloadDir" system property,
+     * or a temporary payload store if the property is not set.
+     *
+     * @return The payload store.
+     */
+    private static PayloadStore openPayloadStore() {
+        String payloadDir = System.getProperty("vcm.payloadDir");
+        return payloadDir != null ? new PayloadStore(Paths.get(payloadDir)) : PayloadStore.openTemporary();
+    }
+
     /**
      * Adds a new classroom to the collection.
      * Logs the result of the operation.
@@ -120,9 +151,15 @@ public class ClassroomController {
     public void scheduleAssignment(String className, String assignmentDetails) {
         Classroom classroom = classrooms.get(className);
         if (classroom != null) {
-            // Schedule the assignment if the classroom exists
-            classroom.scheduleAssignment(new Assignment(className, assignmentDetails));
-            logger.info("Assignment for " + className + " has been scheduled.");
+            try {
+                // Schedule the assignment if the classroom exists
+                classroom.scheduleAssignment(new Assignment(className, payloadStore.put(assignmentDetails), payloadStore));
+                logger.info("Assignment for " + className + " has been scheduled.");
+            } catch (UncheckedIOException | IllegalArgumentException e) {
+                // Log an error if the assignment details could not be stored
+                logger.severe("Unable to store assignment for " + className + ": " + e.getMessage());
+                System.out.println("Error: Unable to store assignment for " + className + ".");
+            }
         } else {
             // Log a warning if the classroom does not exist
             logger.warning("Classroom " + className + " does not exist.");
@@ -153,12 +190,15 @@ public class ClassroomController {
             boolean studentExists = classroom.getStudents().stream()
                 .anyMatch(student -> student.getId().equals(studentId));
             if (studentExists) {
-                // Check if the assignment is scheduled
-                boolean assignmentScheduled = classroom.getScheduledAssignments().stream()
-                    .anyMatch(assignment -> assignment.getDetails().equals(assignmentDetails));
-                if (assignmentScheduled) {
-                    // Submit the assignment if the student is enrolled and the assignment is scheduled
-                    classroom.submitAssignment(new Assignment(className, assignmentDetails));
+                // Check if the assignment is scheduled, comparing content hashes
+                String payloadHash = PayloadStore.hashOf(assignmentDetails);
+                Optional<Assignment> scheduledAssignment = classroom.getScheduledAssignments().stream()
+                    .filter(assignment -> assignment.getPayloadHash().equals(payloadHash))
+                    .findFirst();
+                if (scheduledAssignment.isPresent()) {
+                    // Submit the assignment if the student is enrolled and the assignment is scheduled,
+                    // referencing the details already stored for the scheduled assignment
+                    classroom.submitAssignment(new Assignment(className, scheduledAssignment.get().getPayloadHash(), payloadStore));
                     logger.info("Assignment submitted by Student " + studentId + " in " + className + ".");
                 } else {
                     // Log a warning if the assignment is not scheduled
@@ -218,8 +258,24 @@ public class ClassroomController {
             logger.info("Assignments:");
             System.out.println("Assignments:");
             classroom.getScheduledAssignments().forEach(assignment -> {
-                logger.info("- " + assignment.getDetails());
-                System.out.println("- " + assignment.getDetails());
+                String details;
+                try {
+                    // Read the details once; they may come from the payload store
+                    details = assignment.getDetails();
+                } catch (UncheckedIOException e) {
+                    // Log an error if the assignment details could not be read
+                    logger.severe("Unable to read assignment for " + className + ": " + e.getMessage());
+                    System.out.println("Error: Unable to read assignment for " + className + ".");
+                    return;
+                }
+                if (details == null) {
+                    // Log an error if the assignment details are missing from the payload store
+                    logger.severe("Assignment details for " + className + " are missing.");
+                    System.out.println("Error: Assignment details for " + className + " are missing.");
+                    return;
+                }
+                logger.info("- " + details);
+                System.out.println("- " + details);
             });
         } else {
             // Log a warning if the classroom does not exist
@@ -1,13 +1,19 @@
 package model;
 
+import store.PayloadStore;
+
 /**
  * The Assignment class represents an assignment for a specific class.
  */
 public class Assignment {
     // The name of the class to which this assignment belongs
     private String className;
-    // The details of the assignment
+    // The details of the assignment, when they are held inline
     private String details;
+    // The content hash of the details, when they are held in a payload store
+    private String payloadHash;
+    // The payload store holding the details, if any
+    private PayloadStore payloadStore;
 
     /**
      * Constructs an Assignment object with the specified class name and details.
@@ -22,6 +28,22 @@ public class Assignment {
         this.details = details;
     }
 
+    /**
+     * Constructs an Assignment object whose details are already kept in a payload store.
+     * Only the content hash is held by the assignment.
+     *
+     * @param className    The name of the class to which this assignment belongs.
+     * @param payloadHash  The content hash returned by the payload store for the details.
+     * @param payloadStore The payload store in which the details are kept.
+     */
+    public Assignment(String className, String payloadHash, PayloadStore payloadStore) {
+        // Initializing the className field with the provided class name
+        this.className = className;
+        // Keeping a reference to the stored details by hash
+        this.payloadHash = payloadHash;
+        this.payloadStore = payloadStore;
+    }
+
     /**
      * Returns the name of the class to which this assignment belongs.
      *
@@ -34,11 +56,22 @@ public class Assignment {
 
     /**
      * Returns the details of the assignment.
+     * Details kept in a payload store are read from it, which may fail with an UncheckedIOException.
      *
-     * @return The details of the assignment.
+     * @return The details of the assignment, or null if they are missing from the payload store.
      */
     public String getDetails() {
-        // Returning the details of the assignment
-        return details;
+        // Returning the inline details, or loading them from the payload store
+        return payloadStore == null ? details : payloadStore.get(payloadHash);
+    }
+
+    /**
+     * Returns the content hash of the assignment details.
+     *
+     * @return The hex-encoded SHA-256 hash of the details.
+     */
+    public String getPayloadHash() {
+        // Returning the stored hash, or computing it for inline details
+        return payloadHash != null ? payloadHash : PayloadStore.hashOf(details);
     }
 }
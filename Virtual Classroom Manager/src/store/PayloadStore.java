@@ -0,0 +1,611 @@
+package store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The PayloadStore class keeps assignment and submission payloads addressed by the
+ * SHA-256 hash of their content. Each unique payload is written once, compressed, to
+ * an append-only segment file and read back through memory-mapped I/O. A small LRU
+ * cache holds recently used payloads in memory.
+ * <p>
+ * A store directory is used by one process at a time; opening a directory that another
+ * process holds fails.
+ */
+public class PayloadStore implements Closeable {
+    // Logger instance to record application events and issues
+    private static final Logger logger = Logger.getLogger(PayloadStore.class.getName());
+
+    // Default size after which a new segment file is started
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    // Default number of payload characters kept in the LRU cache
+    public static final long DEFAULT_CACHE_CHARS = 1024L * 1024;
+
+    // Segment file naming: segment-00000.dat, segment-00001.dat, ...
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    // File locked by the process that has the store open
+    private static final String LOCK_FILE = "store.lock";
+    // Length of a SHA-256 digest in bytes
+    private static final int HASH_LENGTH = 32;
+    // Record header: hash, compression flag, raw length, stored length
+    private static final int RECORD_HEADER_LENGTH = HASH_LENGTH + 1 + 4 + 4;
+    private static final byte FLAG_RAW = 0;
+    private static final byte FLAG_DEFLATED = 1;
+    // Hash of the empty payload, the only valid hash of a zero-length record
+    private static final byte[] EMPTY_HASH = digest(new byte[0]);
+
+    // Directory holding the segment files
+    private final Path directory;
+    // Size after which the active segment is sealed
+    private final long segmentSize;
+    // Maximum number of payload characters kept in the cache
+    private final long cacheChars;
+    // Whether the directory is deleted when the store is closed
+    private final boolean temporary;
+
+    // Map from content hash to the location of the payload on disk
+    private final Map<String, Location> index;
+    // Read-only mappings of segment files, by segment number
+    private final Map<Integer, MappedByteBuffer> mappings;
+    // Access-ordered cache of recently used payloads
+    private final LinkedHashMap<String, String> cache;
+    // Number of payload characters currently held in the cache
+    private long cachedChars;
+
+    // The segment currently being appended to
+    private int activeSegment;
+    private FileChannel activeChannel;
+    // Lock on the store directory, held while the store is open
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private boolean closed;
+
+    /**
+     * Location of a stored payload within a segment file.
+     */
+    private static final class Location {
+        private final String hash;
+        private final int segment;
+        private final long offset;
+        private final int rawLength;
+        private final int storedLength;
+        private final boolean deflated;
+
+        private Location(String hash, int segment, long offset, int rawLength, int storedLength, boolean deflated) {
+            this.hash = hash;
+            this.segment = segment;
+            this.offset = offset;
+            this.rawLength = rawLength;
+            this.storedLength = storedLength;
+            this.deflated = deflated;
+        }
+    }
+
+    /**
+     * Opens a PayloadStore in the specified directory with default segment and cache sizes.
+     *
+     * @param directory The directory holding the segment files.
+     */
+    public PayloadStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_CACHE_CHARS, false);
+    }
+
+    /**
+     * Opens a PayloadStore in the specified directory.
+     * Existing segment files are scanned to rebuild the index.
+     *
+     * @param directory   The directory holding the segment files.
+     * @param segmentSize The size in bytes after which a new segment file is started.
+     * @param cacheChars  The maximum number of payload characters kept in memory.
+     * @throws IllegalArgumentException If the segment size is not between 1 and Integer.MAX_VALUE,
+     *                                  or the cache size is negative.
+     * @throws UncheckedIOException     If the directory cannot be opened or is held by another process.
+     */
+    public PayloadStore(Path directory, long segmentSize, long cacheChars) {
+        this(directory, segmentSize, cacheChars, false);
+    }
+
+    private PayloadStore(Path directory, long segmentSize, long cacheChars, boolean temporary) {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + Integer.MAX_VALUE + " bytes.");
+        }
+        if (cacheChars < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.cacheChars = cacheChars;
+        this.temporary = temporary;
+        this.index = new HashMap<>();
+        this.mappings = new HashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        try {
+            Files.createDirectories(directory);
+            lockDirectory();
+            this.activeSegment = recover();
+            this.activeChannel = openSegment(activeSegment);
+        } catch (IOException e) {
+            releaseLock();
+            throw new UncheckedIOException("Unable to open payload store in " + directory, e);
+        }
+        logger.info("PayloadStore opened in " + directory + " with " + index.size() + " payloads.");
+    }
+
+    /**
+     * Opens a PayloadStore in a new temporary directory with default segment and cache sizes.
+     * The directory is deleted when the store is closed or the application exits.
+     *
+     * @return The new payload store.
+     * @throws UncheckedIOException If the temporary directory cannot be created.
+     */
+    public static PayloadStore openTemporary() {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("vcm-payloads");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a temporary payload store.", e);
+        }
+        PayloadStore store = new PayloadStore(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_CACHE_CHARS, true);
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "payload-store-cleanup"));
+        return store;
+    }
+
+    /**
+     * Computes the content hash of a payload without storing it.
+     *
+     * @param payload The payload to hash.
+     * @return The hex-encoded SHA-256 hash of the payload.
+     */
+    public static String hashOf(String payload) {
+        return toHex(digest(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Stores a payload if it is not already present and returns its content hash.
+     * The returned string is shared by every caller storing the same content.
+     * Hashing and compression run outside the store lock; only the lookup and append are serialized.
+     *
+     * @param payload The payload to store.
+     * @return The hex-encoded SHA-256 hash of the payload.
+     * @throws IllegalArgumentException If the stored payload would not fit in a segment.
+     * @throws UncheckedIOException     If the payload cannot be written.
+     */
+    public String put(String payload) {
+        byte[] raw = payload.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = digest(raw);
+        String key = toHex(hash);
+
+        String existing = canonicalKey(key);
+        if (existing != null) {
+            // Content already stored; hand back the canonical key instance
+            return existing;
+        }
+
+        byte[] compressed = deflate(raw);
+        boolean deflated = compressed.length < raw.length;
+        byte[] stored = deflated ? compressed : raw;
+        if (RECORD_HEADER_LENGTH + (long) stored.length > segmentSize) {
+            throw new IllegalArgumentException("Payload of " + raw.length + " bytes does not fit in a segment of "
+                    + segmentSize + " bytes.");
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + stored.length);
+        record.put(hash);
+        record.put(deflated ? FLAG_DEFLATED : FLAG_RAW);
+        record.putInt(raw.length);
+        record.putInt(stored.length);
+        record.put(stored);
+        record.flip();
+        return append(key, record, raw.length, stored.length, deflated, payload);
+    }
+
+    /**
+     * Returns the canonical key instance for a stored hash, or null if it is not stored.
+     */
+    private synchronized String canonicalKey(String key) {
+        ensureOpen();
+        Location location = index.get(key);
+        return location == null ? null : location.hash;
+    }
+
+    /**
+     * Appends a prepared record unless another caller stored the same content first.
+     */
+    private synchronized String append(String key, ByteBuffer record, int rawLength, int storedLength,
+                                       boolean deflated, String payload) {
+        ensureOpen();
+        Location existing = index.get(key);
+        if (existing != null) {
+            return existing.hash;
+        }
+        long recordOffset = -1;
+        try {
+            if (activeChannel.size() + record.remaining() > segmentSize) {
+                sealActiveSegment();
+            }
+            recordOffset = activeChannel.size();
+            while (record.hasRemaining()) {
+                activeChannel.write(record);
+            }
+            index.put(key, new Location(key, activeSegment, recordOffset + RECORD_HEADER_LENGTH,
+                    rawLength, storedLength, deflated));
+        } catch (IOException e) {
+            if (recordOffset >= 0) {
+                discardPartialRecord(recordOffset, e);
+            }
+            throw new UncheckedIOException("Unable to write payload " + key, e);
+        }
+        cachePut(key, payload);
+        return key;
+    }
+
+    /**
+     * Removes a partially written record from the end of the active segment, so that later
+     * records are not appended after it. If the segment cannot be truncated, it is sealed
+     * and appending continues in a new segment.
+     */
+    private void discardPartialRecord(long recordOffset, IOException cause) {
+        try {
+            activeChannel.truncate(recordOffset);
+        } catch (IOException truncateFailure) {
+            cause.addSuppressed(truncateFailure);
+            try {
+                sealActiveSegment();
+            } catch (IOException sealFailure) {
+                cause.addSuppressed(sealFailure);
+            }
+        }
+    }
+
+    /**
+     * Seals the active segment and starts a new one.
+     */
+    private void sealActiveSegment() throws IOException {
+        activeChannel.close();
+        activeSegment++;
+        activeChannel = openSegment(activeSegment);
+    }
+
+    /**
+     * Returns the payload stored under the specified content hash.
+     *
+     * @param hash The hex-encoded SHA-256 hash of the payload.
+     * @return The payload, or null if no payload is stored under the hash.
+     * @throws UncheckedIOException If the payload cannot be read or does not match its hash.
+     */
+    public String get(String hash) {
+        Location location;
+        byte[] stored;
+        synchronized (this) {
+            ensureOpen();
+            String payload = cache.get(hash);
+            if (payload != null) {
+                return payload;
+            }
+            location = index.get(hash);
+            if (location == null) {
+                return null;
+            }
+            try {
+                stored = new byte[location.storedLength];
+                ByteBuffer view = mapping(location).duplicate();
+                view.position((int) location.offset);
+                view.get(stored);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read payload " + hash, e);
+            }
+        }
+
+        // Inflate and verify outside the lock
+        String payload;
+        try {
+            byte[] raw = location.deflated ? inflate(stored, location.rawLength) : stored;
+            if (!toHex(digest(raw)).equals(hash)) {
+                throw new IOException("Corrupt payload: content does not match its hash.");
+            }
+            payload = new String(raw, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read payload " + hash, e);
+        }
+        synchronized (this) {
+            cachePut(hash, payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Checks if a payload with the specified content hash is stored.
+     *
+     * @param hash The hex-encoded SHA-256 hash of the payload.
+     * @return true if the payload is stored, false otherwise.
+     */
+    public synchronized boolean contains(String hash) {
+        return index.containsKey(hash);
+    }
+
+    /**
+     * Returns the number of unique payloads in the store.
+     *
+     * @return The number of unique payloads.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Closes the active segment file, releases the mappings and the directory lock,
+     * and deletes the directory if the store is temporary. Closing twice has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        mappings.clear();
+        cache.clear();
+        cachedChars = 0;
+        try {
+            activeChannel.close();
+            releaseLock();
+            if (temporary) {
+                deleteDirectory();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close payload store in " + directory, e);
+        }
+    }
+
+    /**
+     * Locks the store directory so that no other process can open it.
+     */
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Payload store in " + directory + " is in use by another process.");
+        }
+    }
+
+    private void releaseLock() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warning("Unable to release payload store lock in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Payload store in " + directory + " is closed.");
+        }
+    }
+
+    /**
+     * Scans the existing segment files and rebuilds the index.
+     * Only the last segment is appended to, so only it can end in a torn record, such as the
+     * zero-filled tail left by a crash; it is truncated at the first invalid record. A sealed
+     * segment is never modified: indexing stops at an invalid record and the damage is logged.
+     *
+     * @return The number of the segment to append to.
+     */
+    private int recover() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected file in payload store: " + name);
+                }
+            }
+        }
+        segments.sort(null);
+
+        int lastSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        for (int segment : segments) {
+            boolean active = segment == lastSegment;
+            try (FileChannel channel = active
+                    ? FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+                while (position + RECORD_HEADER_LENGTH <= size) {
+                    header.clear();
+                    while (header.hasRemaining()) {
+                        if (channel.read(header, position + header.position()) < 0) {
+                            throw new IOException("Unexpected end of " + segmentPath(segment) + ".");
+                        }
+                    }
+                    header.flip();
+                    byte[] hash = new byte[HASH_LENGTH];
+                    header.get(hash);
+                    byte flag = header.get();
+                    int rawLength = header.getInt();
+                    int storedLength = header.getInt();
+                    long dataOffset = position + RECORD_HEADER_LENGTH;
+                    if (!isValidRecord(hash, flag, rawLength, storedLength) || dataOffset + storedLength > size) {
+                        break;
+                    }
+                    boolean deflated = flag == FLAG_DEFLATED;
+                    String key = toHex(hash);
+                    index.putIfAbsent(key, new Location(key, segment, dataOffset, rawLength, storedLength, deflated));
+                    position = dataOffset + storedLength;
+                }
+                if (position < size && active) {
+                    // Drop the torn or malformed tail left by an interrupted write
+                    logger.warning("Truncating " + segmentPath(segment) + " at invalid record at offset " + position + ".");
+                    channel.truncate(position);
+                } else if (position < size) {
+                    // Keep the sealed segment intact; payloads after the damage are not indexed
+                    logger.severe("Sealed segment " + segmentPath(segment) + " has an invalid record at offset "
+                            + position + "; " + (size - position) + " bytes after it are not indexed.");
+                }
+            }
+        }
+        return lastSegment;
+    }
+
+    /**
+     * Checks the structure of a record header. Raw records store exactly the raw bytes,
+     * deflated records are never empty, and a zero-length record must carry the hash of
+     * the empty payload.
+     */
+    private static boolean isValidRecord(byte[] hash, byte flag, int rawLength, int storedLength) {
+        if (rawLength < 0 || storedLength < 0) {
+            return false;
+        }
+        if (flag == FLAG_RAW) {
+            return rawLength == storedLength && (rawLength > 0 || Arrays.equals(hash, EMPTY_HASH));
+        }
+        return flag == FLAG_DEFLATED && storedLength > 0;
+    }
+
+    /**
+     * Returns a read-only mapping covering the specified location.
+     * The active segment is remapped when it has grown past the existing mapping.
+     */
+    private MappedByteBuffer mapping(Location location) throws IOException {
+        MappedByteBuffer buffer = mappings.get(location.segment);
+        if (buffer == null || location.offset + location.storedLength > buffer.capacity()) {
+            try (FileChannel channel = FileChannel.open(segmentPath(location.segment), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mappings.put(location.segment, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Adds a payload to the cache and evicts the least recently used payloads over budget.
+     */
+    private void cachePut(String key, String payload) {
+        if (payload.length() > cacheChars) {
+            return;
+        }
+        String previous = cache.put(key, payload);
+        if (previous == null) {
+            cachedChars += payload.length();
+        }
+        Iterator<Map.Entry<String, String>> eldest = cache.entrySet().iterator();
+        while (cachedChars > cacheChars && eldest.hasNext()) {
+            cachedChars -= eldest.next().getValue().length();
+            eldest.remove();
+        }
+    }
+
+    private FileChannel openSegment(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupt payload: expected " + rawLength + " bytes, got " + length + ".");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt payload.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,50 @@
+package workload;
+
+/**
+ * The TraceEvent class represents a single recorded command line and the time it was issued.
+ */
+public class TraceEvent {
+    // The time of the command, relative to the start of the trace
+    private final long timestampNanos;
+    // The command line as entered
+    private final String line;
+
+    /**
+     * Constructs a TraceEvent object with the specified timestamp and command line.
+     *
+     * @param timestampNanos The time of the command, relative to the start of the trace.
+     * @param line           The command line.
+     */
+    public TraceEvent(long timestampNanos, String line) {
+        this.timestampNanos = timestampNanos;
+        this.line = line;
+    }
+
+    /**
+     * Returns the time of the command, relative to the start of the trace.
+     *
+     * @return The timestamp in nanoseconds.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Returns the command line.
+     *
+     * @return The command line.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the command word of the line.
+     *
+     * @return The first space-separated token of the line.
+     */
+    public String getCommand() {
+        int space = line.indexOf(' ');
+        return space < 0 ? line : line.substring(0, space);
+    }
+}
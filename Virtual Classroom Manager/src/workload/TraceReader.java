@@ -0,0 +1,139 @@
+package workload;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TraceReader class reads command lines back from a trace written by {@link TraceWriter}.
+ */
+public class TraceReader implements Closeable {
+    // Stream the trace is read from
+    private final DataInputStream in;
+    // Tokens by id; index 0 is unused because id 0 marks a literal
+    private final List<String> tokens;
+    // Timestamp of the previous record, relative to the start of the trace
+    private long lastMicros;
+
+    /**
+     * Constructs a TraceReader for the specified trace file.
+     *
+     * @param path The trace file to read.
+     * @throws IOException If the file cannot be opened or is not a trace.
+     */
+    public TraceReader(Path path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        this.tokens = new ArrayList<>();
+        this.tokens.add(null);
+        if (in.readInt() != TraceWriter.MAGIC) {
+            in.close();
+            throw new IOException(path + " is not a trace file.");
+        }
+        int version = in.readUnsignedByte();
+        if (version != TraceWriter.VERSION) {
+            in.close();
+            throw new IOException("Unsupported trace version " + version + " in " + path + ".");
+        }
+    }
+
+    /**
+     * Reads all events of the specified trace file.
+     *
+     * @param path The trace file to read.
+     * @return The events in recorded order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<TraceEvent> readAll(Path path) throws IOException {
+        List<TraceEvent> events = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(path)) {
+            TraceEvent event;
+            while ((event = reader.next()) != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads the next event of the trace.
+     *
+     * @return The next event, or null at the end of the trace.
+     * @throws IOException If the trace cannot be read or is truncated mid-record.
+     */
+    public TraceEvent next() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        long delta = readVarLong(first);
+        if (delta < 0 || delta > Long.MAX_VALUE / 1000 - lastMicros) {
+            throw new IOException("Corrupt trace: time delta " + Long.toUnsignedString(delta) + " out of range.");
+        }
+        lastMicros += delta;
+
+        int count = readBounded(TraceWriter.MAX_TOKENS, "token count");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            int id = readBounded(Integer.MAX_VALUE, "token id");
+            String token;
+            if (id == 0) {
+                // Literal: read it and assign it the next id
+                byte[] bytes = new byte[readBounded(TraceWriter.MAX_TOKEN_BYTES, "token length")];
+                in.readFully(bytes);
+                token = new String(bytes, StandardCharsets.UTF_8);
+                tokens.add(token);
+            } else if (id < tokens.size()) {
+                token = tokens.get(id);
+            } else {
+                throw new IOException("Corrupt trace: unknown token id " + id + ".");
+            }
+            line.append(token);
+        }
+        return new TraceEvent(lastMicros * 1000, line.toString());
+    }
+
+    /**
+     * Closes the trace file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a variable-length value and checks that it lies between 0 and the specified limit.
+     */
+    private int readBounded(int limit, String what) throws IOException {
+        long value = readVarLong(in.readUnsignedByte());
+        if (value < 0 || value > limit) {
+            throw new IOException("Corrupt trace: " + what + " " + Long.toUnsignedString(value) + " out of range.");
+        }
+        return (int) value;
+    }
+
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IOException("Corrupt trace: variable-length value too long.");
+            }
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
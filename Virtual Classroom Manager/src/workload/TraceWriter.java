@@ -0,0 +1,136 @@
+package workload;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The TraceWriter class records a stream of command lines to a compact binary trace.
+ * <p>
+ * A trace starts with the magic number and version, followed by one record per command:
+ * the time since the previous command in microseconds, the number of space-separated
+ * tokens, and each token. The first occurrence of a token is written as a literal and
+ * assigned the next id; later occurrences are written as that id. All integers are
+ * unsigned variable-length (LEB128) values.
+ */
+public class TraceWriter implements Closeable, Flushable {
+    // Magic number identifying a trace file ("VCMT")
+    static final int MAGIC = 0x56434D54;
+    // Version of the trace format
+    static final int VERSION = 1;
+    // Largest number of tokens in one command line
+    static final int MAX_TOKENS = 1 << 20;
+    // Largest encoded length of one token in bytes
+    static final int MAX_TOKEN_BYTES = 16 << 20;
+
+    // Stream the trace is written to
+    private final DataOutputStream out;
+    // Map from token to its id; id 0 marks a literal
+    private final Map<String, Integer> tokenIds;
+    // Time at which the writer was opened, for wall-clock recording
+    private final long startNanos;
+    // Timestamp of the previous record, relative to the start of the trace
+    private long lastMicros;
+
+    /**
+     * Constructs a TraceWriter that creates or replaces the specified trace file.
+     *
+     * @param path The trace file to write.
+     * @throws IOException If the file cannot be opened.
+     */
+    public TraceWriter(Path path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        this.tokenIds = new HashMap<>();
+        this.startNanos = System.nanoTime();
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Records a command line at the current wall-clock time.
+     *
+     * @param line The command line.
+     * @throws IOException If the record cannot be written.
+     */
+    public void record(String line) throws IOException {
+        record(System.nanoTime() - startNanos, line);
+    }
+
+    /**
+     * Records a command line at the specified time.
+     * Timestamps earlier than the previous record are recorded as simultaneous with it.
+     *
+     * @param timestampNanos The time of the command, relative to the start of the trace.
+     * @param line           The command line.
+     * @throws IOException If the record cannot be written, or the line has too many or too long tokens.
+     */
+    public void record(long timestampNanos, String line) throws IOException {
+        String[] tokens = line.split(" ", -1);
+        if (tokens.length > MAX_TOKENS) {
+            throw new IOException("Command line has more than " + MAX_TOKENS + " tokens.");
+        }
+        // Encode new tokens up front so that a rejected line leaves no partial record
+        byte[][] literals = new byte[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            if (!tokenIds.containsKey(tokens[i])) {
+                literals[i] = tokens[i].getBytes(StandardCharsets.UTF_8);
+                if (literals[i].length > MAX_TOKEN_BYTES) {
+                    throw new IOException("Token of " + literals[i].length + " bytes exceeds " + MAX_TOKEN_BYTES + " bytes.");
+                }
+            }
+        }
+
+        long micros = Math.max(lastMicros, timestampNanos / 1000);
+        writeVarLong(micros - lastMicros);
+        lastMicros = micros;
+
+        writeVarLong(tokens.length);
+        for (int i = 0; i < tokens.length; i++) {
+            Integer id = tokenIds.get(tokens[i]);
+            if (id != null) {
+                writeVarLong(id);
+            } else {
+                // First occurrence: write the literal and assign it the next id
+                writeVarLong(0);
+                writeVarLong(literals[i].length);
+                out.write(literals[i]);
+                tokenIds.put(tokens[i], tokenIds.size() + 1);
+            }
+        }
+    }
+
+    /**
+     * Flushes buffered records to the trace file.
+     *
+     * @throws IOException If the records cannot be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flushes buffered records and closes the trace file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,245 @@
+package workload;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The WorkloadGenerator class produces a deterministic, synthetic term of classroom activity
+ * as a trace. The same seed and settings always produce the same trace.
+ * <p>
+ * All classrooms are created first. Classroom sizes follow a Zipf distribution, so a few
+ * classrooms are large and most are small. The rest of the term interleaves enrollments,
+ * scheduled assignments, submissions from enrolled students, and classroom views, with
+ * views favouring the larger classrooms. Commands are spaced by exponentially distributed
+ * intervals. StrictMath is used so that traces are identical across platforms and JDKs.
+ */
+public class WorkloadGenerator {
+    // Relative weights of the command kinds once setup is complete
+    private static final int ENROLL_WEIGHT = 3;
+    private static final int SCHEDULE_WEIGHT = 1;
+    private static final int SUBMIT_WEIGHT = 6;
+    private static final int VIEW_WEIGHT = 1;
+    // One in this many view commands lists all classrooms instead
+    private static final int LIST_ONE_IN = 10;
+    // Probability that an enrolled student submits a scheduled assignment
+    private static final double SUBMIT_PROBABILITY = 0.9;
+
+    // Words used to build assignment details
+    private static final String[] VOCABULARY = {
+        "implement", "analyse", "compare", "write", "prove", "design", "test", "measure",
+        "linked", "list", "tree", "graph", "hash", "table", "queue", "stack", "sort", "search",
+        "essay", "report", "lab", "exercise", "chapter", "section", "problem", "solution",
+        "using", "with", "for", "the", "a", "of", "and", "in", "recursive", "iterative"
+    };
+
+    private final long seed;
+    private final int classrooms;
+    private final int maxStudentsPerClass;
+    private final double zipfExponent;
+    private final int assignmentsPerClass;
+    private final long meanIntervalMicros;
+
+    /**
+     * Constructs a WorkloadGenerator with the specified settings.
+     *
+     * @param seed                The seed of the random number generator.
+     * @param classrooms          The number of classrooms.
+     * @param maxStudentsPerClass The number of students in the largest classroom.
+     * @param zipfExponent        The Zipf exponent of classroom sizes; 0 makes all classrooms equal.
+     * @param assignmentsPerClass The number of assignments scheduled in each classroom.
+     * @param meanIntervalMicros  The mean time between commands in microseconds.
+     */
+    public WorkloadGenerator(long seed, int classrooms, int maxStudentsPerClass, double zipfExponent,
+                             int assignmentsPerClass, long meanIntervalMicros) {
+        if (classrooms < 1 || maxStudentsPerClass < 1 || assignmentsPerClass < 0
+                || zipfExponent < 0 || meanIntervalMicros < 0) {
+            throw new IllegalArgumentException("Invalid workload settings.");
+        }
+        this.seed = seed;
+        this.classrooms = classrooms;
+        this.maxStudentsPerClass = maxStudentsPerClass;
+        this.zipfExponent = zipfExponent;
+        this.assignmentsPerClass = assignmentsPerClass;
+        this.meanIntervalMicros = meanIntervalMicros;
+    }
+
+    /**
+     * Generates the workload and writes it to the specified trace.
+     *
+     * @param writer The trace to write to.
+     * @return The number of commands written.
+     * @throws IOException If the trace cannot be written.
+     */
+    public long generate(TraceWriter writer) throws IOException {
+        Random random = new Random(seed);
+        long timeMicros = 0;
+        long count = 0;
+
+        // Zipf-distributed classroom sizes, and cumulative weights for picking classrooms by size
+        int[] sizes = new int[classrooms];
+        double[] cumulative = new double[classrooms];
+        double total = 0;
+        for (int k = 0; k < classrooms; k++) {
+            double weight = 1.0 / StrictMath.pow(k + 1, zipfExponent);
+            sizes[k] = Math.max(1, (int) Math.round(maxStudentsPerClass * weight));
+            total += weight;
+            cumulative[k] = total;
+        }
+
+        // Setup: create every classroom
+        for (int k = 0; k < classrooms; k++) {
+            writer.record(timeMicros * 1000, "add_classroom " + className(k));
+            timeMicros += nextInterval(random);
+            count++;
+        }
+
+        // Per-classroom progress through the term
+        int[] enrolled = new int[classrooms];
+        int[] scheduled = new int[classrooms];
+        List<Integer> enrolling = new ArrayList<>();
+        List<Integer> scheduling = new ArrayList<>();
+        for (int k = 0; k < classrooms; k++) {
+            enrolling.add(k);
+        }
+        // Submissions owed by enrolled students for assignments already scheduled
+        List<String> pendingSubmissions = new ArrayList<>();
+
+        while (!enrolling.isEmpty() || !scheduling.isEmpty() || !pendingSubmissions.isEmpty()) {
+            int enrollWeight = enrolling.isEmpty() ? 0 : ENROLL_WEIGHT;
+            int scheduleWeight = scheduling.isEmpty() ? 0 : SCHEDULE_WEIGHT;
+            int submitWeight = pendingSubmissions.isEmpty() ? 0 : SUBMIT_WEIGHT;
+            int pick = random.nextInt(enrollWeight + scheduleWeight + submitWeight + VIEW_WEIGHT);
+
+            String line;
+            if (pick < enrollWeight) {
+                int slot = random.nextInt(enrolling.size());
+                int k = enrolling.get(slot);
+                int n = enrolled[k]++;
+                line = "add_student " + studentId(k, n) + " Student" + k + "x" + n + " " + className(k);
+                if (enrolled[k] == sizes[k]) {
+                    removeAt(enrolling, slot);
+                }
+                if (n == 0 && assignmentsPerClass > 0) {
+                    // Assignments can be scheduled once a classroom has a student
+                    scheduling.add(k);
+                }
+            } else if (pick < enrollWeight + scheduleWeight) {
+                int slot = random.nextInt(scheduling.size());
+                int k = scheduling.get(slot);
+                int a = scheduled[k]++;
+                String details = assignmentDetails(random, a);
+                line = "schedule_assignment " + className(k) + " " + details;
+                if (scheduled[k] == assignmentsPerClass) {
+                    removeAt(scheduling, slot);
+                }
+                for (int n = 0; n < enrolled[k]; n++) {
+                    if (random.nextDouble() < SUBMIT_PROBABILITY) {
+                        pendingSubmissions.add("submit_assignment " + studentId(k, n) + " " + className(k) + " " + details);
+                    }
+                }
+            } else if (pick < enrollWeight + scheduleWeight + submitWeight) {
+                line = removeAt(pendingSubmissions, random.nextInt(pendingSubmissions.size()));
+            } else if (random.nextInt(LIST_ONE_IN) == 0) {
+                line = "list_classrooms";
+            } else {
+                line = "view_classroom " + className(zipfPick(random, cumulative));
+            }
+
+            writer.record(timeMicros * 1000, line);
+            timeMicros += nextInterval(random);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Generates a workload trace from the command line.
+     * Usage: WorkloadGenerator [trace file] [--seed N] [--classrooms N] [--max-students N]
+     * [--zipf S] [--assignments N] [--interval-us N]
+     *
+     * @param args Command-line arguments.
+     * @throws IOException If the trace cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length % 2 != 1) {
+            System.out.println("Usage: WorkloadGenerator [trace file] [--seed N] [--classrooms N] [--max-students N]"
+                    + " [--zipf S] [--assignments N] [--interval-us N]");
+            return;
+        }
+        long seed = 42;
+        int classrooms = 50;
+        int maxStudents = 200;
+        double zipf = 1.0;
+        int assignments = 10;
+        long interval = 1000;
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--classrooms": classrooms = Integer.parseInt(args[i + 1]); break;
+                case "--max-students": maxStudents = Integer.parseInt(args[i + 1]); break;
+                case "--zipf": zipf = Double.parseDouble(args[i + 1]); break;
+                case "--assignments": assignments = Integer.parseInt(args[i + 1]); break;
+                case "--interval-us": interval = Long.parseLong(args[i + 1]); break;
+                default:
+                    System.out.println("Error: Unknown option " + args[i] + ".");
+                    return;
+            }
+        }
+        WorkloadGenerator generator = new WorkloadGenerator(seed, classrooms, maxStudents, zipf, assignments, interval);
+        try (TraceWriter writer = new TraceWriter(Paths.get(args[0]))) {
+            long count = generator.generate(writer);
+            System.out.println("Wrote " + count + " commands to " + args[0] + ".");
+        }
+    }
+
+    private long nextInterval(Random random) {
+        return (long) (-meanIntervalMicros * StrictMath.log(1 - random.nextDouble()));
+    }
+
+    private static int zipfPick(Random random, double[] cumulative) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String assignmentDetails(Random random, int a) {
+        StringBuilder details = new StringBuilder("HW").append(a + 1).append(':');
+        int words = 8 + random.nextInt(33);
+        for (int i = 0; i < words; i++) {
+            details.append(' ').append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return details.toString();
+    }
+
+    private static String className(int k) {
+        return "C" + k;
+    }
+
+    private static String studentId(int k, int n) {
+        return "S" + k + "x" + n;
+    }
+
+    /**
+     * Removes an element in constant time by moving the last element into its slot.
+     */
+    private static <T> T removeAt(List<T> list, int index) {
+        T removed = list.get(index);
+        T last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+        }
+        return removed;
+    }
+}
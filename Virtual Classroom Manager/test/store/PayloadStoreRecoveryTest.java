@@ -0,0 +1,178 @@
+package store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The PayloadStoreRecoveryTest class checks that reopening a PayloadStore recovers its
+ * payloads after a torn write or a damaged sealed segment, and that it can be appended
+ * to again afterwards.
+ * <p>
+ * Run it with plain javac and java, for example from the "Virtual Classroom Manager" directory:
+ * javac -d out src/store/PayloadStore.java test/store/PayloadStoreRecoveryTest.java
+ * java -cp out store.PayloadStoreRecoveryTest
+ */
+public class PayloadStoreRecoveryTest {
+    // Small segments so that a few payloads fill several segment files
+    private static final long SEGMENT_SIZE = 512;
+
+    /**
+     * Runs all recovery tests and exits with a non-zero status if any of them fails.
+     *
+     * @param args Command-line arguments (unused).
+     * @throws IOException If a temporary directory cannot be created or removed.
+     */
+    public static void main(String[] args) throws IOException {
+        int failures = 0;
+        failures += run("torn tail of the active segment", PayloadStoreRecoveryTest::tornTail);
+        failures += run("corrupt sealed segment", PayloadStoreRecoveryTest::corruptSealedSegment);
+        if (failures > 0) {
+            System.out.println(failures + " test(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("All tests passed.");
+    }
+
+    /**
+     * A partial record at the end of the active segment is truncated; every complete
+     * payload survives and the store appends and reopens cleanly afterwards.
+     */
+    private static void tornTail(Path directory) throws IOException {
+        Map<String, String> stored = new LinkedHashMap<>();
+        PayloadStore store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        for (int i = 0; i < 5; i++) {
+            stored.put(store.put(payload(i)), payload(i));
+        }
+        store.close();
+
+        Path active = lastSegment(directory);
+        long intactSize = Files.size(active);
+        // Simulate a crash mid-write: a record header with no data, followed by zero fill
+        try (FileChannel channel = FileChannel.open(active, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(64);
+            torn.put(new byte[32]).put((byte) 1).putInt(100).putInt(50);
+            torn.rewind();
+            channel.write(torn);
+        }
+
+        store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        check(Files.size(active) == intactSize, "torn tail was not truncated");
+        assertPayloads(store, stored);
+
+        stored.put(store.put(payload(100)), payload(100));
+        store.close();
+
+        store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        assertPayloads(store, stored);
+        store.close();
+    }
+
+    /**
+     * A damaged sealed segment is left untouched; payloads in other segments survive and the
+     * store still appends and reopens cleanly.
+     */
+    private static void corruptSealedSegment(Path directory) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        PayloadStore store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        for (int i = 0; i < 100; i++) {
+            hashes.add(store.put(payload(i)));
+        }
+        store.close();
+
+        List<Path> segments = segments(directory);
+        check(segments.size() > 2, "expected several segments, found " + segments.size());
+        Path sealed = segments.get(0);
+        byte[] damaged = Files.readAllBytes(sealed);
+        // Byte 32 is the flag of the first record
+        damaged[32] = 7;
+        Files.write(sealed, damaged);
+
+        store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        check(Arrays.equals(Files.readAllBytes(sealed), damaged), "sealed segment was modified");
+        int found = 0;
+        for (String hash : hashes) {
+            if (store.contains(hash)) {
+                check(store.get(hash) != null, "indexed payload " + hash + " cannot be read");
+                found++;
+            }
+        }
+        check(found > 0 && found < hashes.size(), "expected payloads outside the damaged segment, found " + found);
+
+        String added = store.put(payload(1000));
+        store.close();
+
+        store = new PayloadStore(directory, SEGMENT_SIZE, 0);
+        check(payload(1000).equals(store.get(added)), "payload appended after recovery was lost");
+        int foundAfterReopen = 0;
+        for (String hash : hashes) {
+            if (store.contains(hash)) {
+                foundAfterReopen++;
+            }
+        }
+        check(foundAfterReopen == found, "reopening changed the recovered payloads");
+        store.close();
+    }
+
+    private static void assertPayloads(PayloadStore store, Map<String, String> stored) {
+        stored.forEach((hash, payload) -> check(payload.equals(store.get(hash)), "payload " + hash + " was not recovered"));
+    }
+
+    private static String payload(int i) {
+        return "Starter code for exercise " + i + ": implement the linked list and its tests. " + i;
+    }
+
+    private static Path lastSegment(Path directory) throws IOException {
+        List<Path> segments = segments(directory);
+        return segments.get(segments.size() - 1);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * A test body that runs against an empty store directory.
+     */
+    private interface StoreTest {
+        void run(Path directory) throws IOException;
+    }
+
+    private static int run(String name, StoreTest test) throws IOException {
+        Path directory = Files.createTempDirectory("vcm-store-test");
+        try {
+            test.run(directory);
+            System.out.println("PASS " + name);
+            return 0;
+        } catch (AssertionError | RuntimeException e) {
+            System.out.println("FAIL " + name + ": " + e);
+            return 1;
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}